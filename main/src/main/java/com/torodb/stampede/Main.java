@@ -25,12 +25,19 @@ import com.google.common.base.Charsets;
 import com.google.common.base.Throwables;
 import com.google.common.net.HostAndPort;
 import com.google.common.util.concurrent.Service;
+import com.google.inject.Binder;
 import com.google.inject.CreationException;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
+import com.google.inject.Module;
+import com.google.inject.util.Modules;
 import com.torodb.core.BuildProperties;
+import com.torodb.core.annotations.ParallelLevel;
+import com.torodb.core.annotations.TorodbIdleService;
+import com.torodb.core.annotations.TorodbRunnableService;
 import com.torodb.core.backend.BackendBundle;
 import com.torodb.core.bundle.BundleConfig;
+import com.torodb.core.concurrent.DefaultConcurrentToolsFactory.BlockerThreadFactoryFunction;
 import com.torodb.core.exceptions.SystemException;
 import com.torodb.core.guice.EssentialModule;
 import com.torodb.core.logging.ComponentLoggerFactory;
@@ -63,10 +70,15 @@ import org.apache.logging.log4j.Logger;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.Thread.UncaughtExceptionHandler;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Clock;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.PropertyResourceBundle;
 import java.util.ResourceBundle;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -282,10 +294,8 @@ public class Main {
     Backend backendConfig = config.getBackend();
     Replication replicationConfig = config.getReplication();
 
-    Injector essentialInjector = Guice.createInjector(new EssentialModule(
-        new ComponentLoggerFactory("LIFECYCLE"),
-        metricsConfig,
-        clock)
+    Injector essentialInjector = Guice.createInjector(
+        createEssentialModule(config, metricsConfig, clock)
     );
     
     Function<BundleConfig, BackendBundle> backendBundleGenerator = generalConfig ->
@@ -303,6 +313,7 @@ public class Main {
           backendBundleGenerator,
           replFilters,
           createShardConfigBuilders(replicationConfig),
+          replicationConfig.getSelectiveResync(),
           LOGGER_FACTORY
       );
     } else {
@@ -383,6 +394,51 @@ public class Main {
     config.getBackend().getBackendImplementation().accept(visitor, null);
   }
 
+  static Module createEssentialModule(Config config, MetricsConfig metricsConfig,
+      Clock clock) {
+    Module essentialModule = new EssentialModule(
+        new ComponentLoggerFactory("LIFECYCLE"),
+        metricsConfig,
+        clock);
+
+    List<Module> overrides = new ArrayList<>();
+
+    Integer parallelLevel = config.getParallelLevel();
+    if (parallelLevel != null) {
+      overrides.add(binder ->
+          binder.bind(Integer.class)
+              .annotatedWith(ParallelLevel.class)
+              .toInstance(parallelLevel)
+      );
+    }
+    if (config.getVirtualThreads()) {
+      overrides.add(Main::bindVirtualThreadFactories);
+    }
+
+    if (overrides.isEmpty()) {
+      return essentialModule;
+    }
+    return Modules.override(essentialModule).with(overrides);
+  }
+
+  /**
+   * Binds the thread factories used by services and blocking executors to factories of virtual
+   * threads. Fork join pools keep using platform threads.
+   */
+  private static void bindVirtualThreadFactories(Binder binder) {
+    ThreadFactory threadFactory = VirtualThreads.createThreadFactory("torodb-");
+    binder.bind(ThreadFactory.class)
+        .toInstance(threadFactory);
+    binder.bind(ThreadFactory.class)
+        .annotatedWith(TorodbIdleService.class)
+        .toInstance(threadFactory);
+    binder.bind(ThreadFactory.class)
+        .annotatedWith(TorodbRunnableService.class)
+        .toInstance(threadFactory);
+    binder.bind(BlockerThreadFactoryFunction.class)
+        .toInstance(prefix -> VirtualThreads.createThreadFactory(prefix + "-"));
+  }
+
   private static List<StampedeConfig.ShardConfigBuilder> createShardConfigBuilders(
       Replication replicationConfig) {
 
@@ -397,7 +453,8 @@ public class Main {
   private static StampedeConfig.ShardConfigBuilder createUnshardedShardBuilder(
       Replication replicationConfig) {
 
-    return translateShardConfig(replicationConfig, () -> "unsharded");
+    return translateShardConfig(replicationConfig, replicationConfig.getDumpPath(),
+        () -> "unsharded");
   }
 
   private static StampedeConfig.ShardConfigBuilder mapShardReplication(
@@ -406,7 +463,7 @@ public class Main {
     ShardReplication mergedShardConfig = replicationConfig.mergeWith(shardRepl);
     Supplier<String> shardIdProvider = () -> getShardId(shardRepl, counter);
     
-    return translateShardConfig(mergedShardConfig, shardIdProvider);
+    return translateShardConfig(mergedShardConfig, shardRepl.getDumpPath(), shardIdProvider);
   }
 
   private static String getShardId(ShardReplication shardRepl, AtomicInteger counter) {
@@ -419,6 +476,7 @@ public class Main {
 
   private static StampedeConfig.ShardConfigBuilder translateShardConfig(
       AbstractShardReplication shardConfig,
+      String dumpPath,
       Supplier<String> shardIdProvider) {
     MongoClientConfiguration clientConf =
         MongoClientConfigurationFactory.getMongoClientConfiguration(shardConfig);
@@ -429,6 +487,12 @@ public class Main {
         return shardId;
       }
 
+      @Override
+      public Optional<Path> getDumpPath() {
+        return Optional.ofNullable(dumpPath)
+            .map(Paths::get);
+      }
+
       @Override
       public MongoDbShardingConfig.ShardConfig createConfig(
           ConsistencyHandler consistencyHandler) {
@@ -0,0 +1,63 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.torodb.stampede;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates thread factories of virtual threads.
+ *
+ * <p>Virtual threads are only available on Java 21 or later, while ToroDB Stampede is compiled for
+ * Java 8, so they are created by reflection.
+ */
+public final class VirtualThreads {
+
+  private VirtualThreads() {
+  }
+
+  public static boolean isSupported() {
+    try {
+      Thread.class.getMethod("ofVirtual");
+      return true;
+    } catch (NoSuchMethodException ex) {
+      return false;
+    }
+  }
+
+  /**
+   * Returns a factory of virtual threads whose names are the given prefix followed by a counter.
+   *
+   * @throws UnsupportedOperationException if virtual threads are not supported by the running JVM
+   */
+  public static ThreadFactory createThreadFactory(String prefix) {
+    try {
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      Method nameMethod = builderClass.getMethod("name", String.class, long.class);
+      builder = nameMethod.invoke(builder, prefix, 0L);
+      return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+    } catch (NoSuchMethodException | ClassNotFoundException ex) {
+      throw new UnsupportedOperationException("Virtual threads require Java 21 or later", ex);
+    } catch (IllegalAccessException | InvocationTargetException ex) {
+      throw new IllegalStateException("It was impossible to create a virtual thread factory", ex);
+    }
+  }
+}
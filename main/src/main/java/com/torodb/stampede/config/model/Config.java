@@ -28,11 +28,17 @@ import com.torodb.packaging.config.validation.SslEnabledForX509Authentication;
 import com.torodb.stampede.config.model.backend.Backend;
 import com.torodb.stampede.config.model.logging.Logging;
 import com.torodb.stampede.config.model.mongo.replication.Replication;
+import com.torodb.stampede.config.validation.MutualExclusiveDumpPathOrShards;
+import com.torodb.stampede.config.validation.ParallelLevelFitsInPool;
+import com.torodb.stampede.config.validation.VirtualThreadsSupported;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
-@JsonPropertyOrder({"logging", "metricsEnabled", "replication", "backend"})
+@JsonPropertyOrder({"logging", "metricsEnabled", "virtualThreads", "parallelLevel",
+    "replication", "backend"})
+@ParallelLevelFitsInPool
 public class Config implements MetricsConfig {
 
   @Description("config.logging")
@@ -44,8 +50,18 @@ public class Config implements MetricsConfig {
   @NotNull
   @JsonProperty(required = true)
   private Boolean metricsEnabled = false;
+  @Description("config.generic.virtualThreads")
+  @NotNull
+  @VirtualThreadsSupported
+  @JsonProperty(required = false)
+  private Boolean virtualThreads = false;
+  @Description("config.generic.parallelLevel")
+  @Min(1)
+  @JsonProperty(required = false)
+  private Integer parallelLevel;
   @Valid
   @MutualExclusiveReplSetOrShards
+  @MutualExclusiveDumpPathOrShards
   @SslEnabledForX509Authentication
   @RequiredParametersForAuthentication
   @JsonProperty(required = true)
@@ -75,9 +91,26 @@ public class Config implements MetricsConfig {
     this.metricsEnabled = metricsEnabled;
   }
 
+  public Boolean getVirtualThreads() {
+    return virtualThreads;
+  }
+
+  public void setVirtualThreads(Boolean virtualThreads) {
+    this.virtualThreads = virtualThreads;
+  }
+
+  public Integer getParallelLevel() {
+    return parallelLevel;
+  }
+
+  public void setParallelLevel(Integer parallelLevel) {
+    this.parallelLevel = parallelLevel;
+  }
+
   //TODO: This is a patch that should be changed once TORODB-397 is completed
   @DoNotChange
   @MutualExclusiveReplSetOrShards
+  @MutualExclusiveDumpPathOrShards
   public Replication getReplication() {
     return replication;
   }
@@ -32,12 +32,15 @@ import com.torodb.packaging.config.validation.NotEmptySrtingWithDefault;
 import java.util.List;
 
 import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
 
 @JsonPropertyOrder({"replSetName", "syncSource", "ssl", "auth", "include", "exclude",
-    "mongopassFile", "shards"})
+    "mongopassFile", "shards", "selectiveResync", "dumpPath"})
 public class Replication extends AbstractReplication<ShardReplication> {
 
   private String mongopassFile = ConfigUtils.getUserHomeFilePath(".mongopass");
+  private Boolean selectiveResync = false;
+  private String dumpPath;
 
   public Replication() {
     super.setSyncSource(StringWithDefault.withDefault("localhost:27017"));
@@ -91,6 +94,27 @@ public class Replication extends AbstractReplication<ShardReplication> {
     super.setShardList(shards);
   }
 
+  @Description("config.mongo.replication.selectiveResync")
+  @NotNull
+  @JsonProperty(required = false)
+  public Boolean getSelectiveResync() {
+    return selectiveResync;
+  }
+
+  public void setSelectiveResync(Boolean selectiveResync) {
+    this.selectiveResync = selectiveResync;
+  }
+
+  @Description("config.mongo.replication.dumpPath")
+  @JsonProperty(required = false)
+  public String getDumpPath() {
+    return dumpPath;
+  }
+
+  public void setDumpPath(String dumpPath) {
+    this.dumpPath = dumpPath;
+  }
+
   public void setMongopassFile(String mongopassFile) {
     this.mongopassFile = mongopassFile;
   }
@@ -31,9 +31,11 @@ import com.torodb.packaging.config.validation.NotEmptySrtingWithDefault;
 
 import javax.validation.constraints.NotNull;
 
-@JsonPropertyOrder({"replSetName", "syncSource", "ssl", "auth"})
+@JsonPropertyOrder({"replSetName", "syncSource", "ssl", "auth", "dumpPath"})
 public class ShardReplication extends AbstractShardReplication {
 
+  private String dumpPath;
+
   @Description("config.mongo.replication.replSetName")
   @JsonProperty(required = true)
   public StringWithDefault getReplSetName() {
@@ -65,4 +67,14 @@ public class ShardReplication extends AbstractShardReplication {
   public Auth getAuth() {
     return super.getAuth();
   }
+
+  @Description("config.mongo.replication.dumpPath")
+  @JsonProperty(required = false)
+  public String getDumpPath() {
+    return dumpPath;
+  }
+
+  public void setDumpPath(String dumpPath) {
+    this.dumpPath = dumpPath;
+  }
 }
@@ -0,0 +1,44 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.torodb.stampede.config.validation;
+
+import com.torodb.stampede.config.model.mongo.replication.Replication;
+
+import javax.validation.ConstraintValidator;
+import javax.validation.ConstraintValidatorContext;
+
+/**
+ * Checks that the dump path is not set on the replication section when shards are specified, as
+ * each shard is loaded from its own dump.
+ */
+public class MutualExclusiveDumpPathOrShardsValidator
+    implements ConstraintValidator<MutualExclusiveDumpPathOrShards, Replication> {
+
+  @Override
+  public void initialize(MutualExclusiveDumpPathOrShards constraintAnnotation) {
+  }
+
+  @Override
+  public boolean isValid(Replication value, ConstraintValidatorContext context) {
+    if (value == null || value.getShardList() == null || value.getShardList().isEmpty()) {
+      return true;
+    }
+    return value.getDumpPath() == null;
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede.config.validation;
+
+import com.torodb.stampede.config.model.Config;
+import com.torodb.stampede.config.model.backend.Pool;
+
+import java.util.List;
+
+import javax.validation.ConstraintValidator;
+import javax.validation.ConstraintValidatorContext;
+
+/**
+ * Checks that the backend connections used by the replication of all shards fit in the backend
+ * pool at the same time.
+ *
+ * <p>Each shard may use up to parallel level connections at once: the initial sync cloner inserts
+ * documents with parallel level minus one workers and indexes are then created by parallel level
+ * concurrent connections. Connections reserved to read and the ones used by the system and by the
+ * replication to read and commit the oplog position are not available to them, so the parallel
+ * level multiplied by the number of shards must not exceed
+ * {@code connectionPoolSize - reservedReadPoolSize - 2}.
+ */
+public class ParallelLevelFitsInPoolValidator
+    implements ConstraintValidator<ParallelLevelFitsInPool, Config> {
+
+  private static final int NON_REPLICATION_CONNECTIONS = 2;
+
+  @Override
+  public void initialize(ParallelLevelFitsInPool constraintAnnotation) {
+  }
+
+  @Override
+  public boolean isValid(Config value, ConstraintValidatorContext context) {
+    if (value == null || value.getReplication() == null || value.getBackend() == null) {
+      return true;
+    }
+    Integer parallelLevel = value.getParallelLevel();
+    Pool pool = value.getBackend().getPool();
+    if (parallelLevel == null || pool == null || pool.getConnectionPoolSize() == null
+        || pool.getReservedReadPoolSize() == null) {
+      return true;
+    }
+    List<?> shardList = value.getReplication().getShardList();
+    int shards = shardList == null || shardList.isEmpty() ? 1 : shardList.size();
+
+    return parallelLevel * shards <= pool.getConnectionPoolSize()
+        - pool.getReservedReadPoolSize() - NON_REPLICATION_CONNECTIONS;
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.torodb.stampede.config.validation;
+
+import com.torodb.stampede.VirtualThreads;
+
+import javax.validation.ConstraintValidator;
+import javax.validation.ConstraintValidatorContext;
+
+/**
+ * Checks that virtual threads are only enabled when the running JVM supports them.
+ */
+public class VirtualThreadsSupportedValidator
+    implements ConstraintValidator<VirtualThreadsSupported, Boolean> {
+
+  @Override
+  public void initialize(VirtualThreadsSupported constraintAnnotation) {
+  }
+
+  @Override
+  public boolean isValid(Boolean value, ConstraintValidatorContext context) {
+    return value == null || !value || VirtualThreads.isSupported();
+  }
+}
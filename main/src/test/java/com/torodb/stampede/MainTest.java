@@ -0,0 +1,62 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.torodb.core.annotations.TorodbIdleService;
+import com.torodb.core.annotations.TorodbRunnableService;
+import com.torodb.core.concurrent.DefaultConcurrentToolsFactory.BlockerThreadFactoryFunction;
+import com.torodb.stampede.config.model.Config;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.util.concurrent.ThreadFactory;
+
+public class MainTest {
+
+  @Test
+  public void testCreateEssentialModuleWithVirtualThreads() throws Exception {
+    Assume.assumeTrue("Virtual threads require Java 21 or later", VirtualThreads.isSupported());
+
+    Config config = new Config();
+    config.setVirtualThreads(true);
+    Injector injector = Guice.createInjector(
+        Main.createEssentialModule(config, config, Clock.systemUTC()));
+
+    assertCreatesVirtualThreads("ThreadFactory",
+        injector.getInstance(ThreadFactory.class));
+    assertCreatesVirtualThreads("@TorodbIdleService ThreadFactory",
+        injector.getInstance(Key.get(ThreadFactory.class, TorodbIdleService.class)));
+    assertCreatesVirtualThreads("@TorodbRunnableService ThreadFactory",
+        injector.getInstance(Key.get(ThreadFactory.class, TorodbRunnableService.class)));
+    assertCreatesVirtualThreads("BlockerThreadFactoryFunction",
+        injector.getInstance(BlockerThreadFactoryFunction.class).apply("blocker"));
+  }
+
+  private static void assertCreatesVirtualThreads(String binding, ThreadFactory threadFactory)
+      throws Exception {
+    Thread thread = threadFactory.newThread(() -> {
+    });
+    Assert.assertTrue(binding + " does not create virtual threads",
+        (Boolean) Thread.class.getMethod("isVirtual").invoke(thread));
+  }
+}
@@ -26,6 +26,7 @@ import com.torodb.packaging.config.model.protocol.mongo.Role;
 import com.torodb.packaging.config.util.ConfigUtils;
 import com.torodb.stampede.CliConfig;
 import com.torodb.stampede.CliConfigUtils;
+import com.torodb.stampede.VirtualThreads;
 import com.torodb.stampede.config.model.Config;
 import com.torodb.stampede.config.model.backend.postgres.Postgres;
 import com.torodb.stampede.config.model.mongo.replication.ShardReplication;
@@ -165,6 +166,80 @@ public class ConfigTest {
     CliConfigUtils.readConfig(cliConfig);
   }
 
+  @Test
+  public void testParseWithVirtualThreadsParam() throws Exception {
+    CliConfig cliConfig = new CliConfig() {
+      @Override
+      public List<String> getParams() {
+        String[] params = new String[]{
+          "/virtualThreads=true"
+        };
+        return Arrays.asList(params);
+      }
+    };
+    try {
+      Config config = CliConfigUtils.readConfig(cliConfig);
+      Assert.assertTrue("Virtual threads enabled on a JVM that does not support them",
+          VirtualThreads.isSupported());
+      Assert.assertTrue("/virtualThreads has different value than that specified",
+          config.getVirtualThreads());
+    } catch (IllegalArgumentException ex) {
+      Assert.assertFalse("Virtual threads rejected on a JVM that supports them",
+          VirtualThreads.isSupported());
+    }
+  }
+
+  @Test
+  public void testParseWithParallelLevelParam() throws Exception {
+    CliConfig cliConfig = new CliConfig() {
+      @Override
+      public List<String> getParams() {
+        String[] params = new String[]{
+          "/parallelLevel=27",
+          "/backend/pool/connectionPoolSize=30"
+        };
+        return Arrays.asList(params);
+      }
+    };
+    Config config = CliConfigUtils.readConfig(cliConfig);
+    Assert.assertEquals("/parallelLevel has different value than that specified",
+        Integer.valueOf(27), config.getParallelLevel());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testParseWithParallelLevelExceedingPoolParam() throws Exception {
+    CliConfig cliConfig = new CliConfig() {
+      @Override
+      public List<String> getParams() {
+        String[] params = new String[]{
+          "/parallelLevel=28",
+          "/backend/pool/connectionPoolSize=30"
+        };
+        return Arrays.asList(params);
+      }
+    };
+    CliConfigUtils.readConfig(cliConfig);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testParseWithParallelLevelExceedingPoolWithShardsParam() throws Exception {
+    CliConfig cliConfig = new CliConfig() {
+      @Override
+      public List<String> getParams() {
+        String[] params = new String[]{
+          "/parallelLevel=14",
+          "/backend/pool/connectionPoolSize=30",
+          "/replication/shards=[" 
+              + "{syncSource: 'localhost:27020', replSetName: shard1},"
+              + "{syncSource: 'localhost:27030', replSetName: shard2}"
+              + "]"
+        };
+        return Arrays.asList(params);
+      }
+    };
+    CliConfigUtils.readConfig(cliConfig);
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void testParseWithEmptyYAML() throws Exception {
     CliConfig cliConfig = new CliConfig() {
@@ -459,6 +534,64 @@ public class ConfigTest {
     Assert.assertEquals("/replication/shards/2/replSetName has different value than that specified", "shard3", config.getReplication().getShardList().get(2).getReplSetName().value());
   }
 
+  @Test
+  public void testReplicationWithSelectiveResync() throws Exception {
+    CliConfig cliConfig = new CliConfig() {
+      @Override
+      public List<String> getParams() {
+        String[] params = new String[]{
+            "/replication/shards=[" 
+                + "{syncSource: 'localhost:27020', replSetName: shard1},"
+                + "{syncSource: 'localhost:27030', replSetName: shard2}"
+                + "]",
+            "/replication/selectiveResync=true"
+        };
+        return Arrays.asList(params);
+      }
+    };
+    Config config = CliConfigUtils.readConfig(cliConfig);
+
+    Assert.assertTrue("/replication/selectiveResync has different value than that specified", config.getReplication().getSelectiveResync());
+  }
+
+  @Test
+  public void testReplicationWithShardDumpPath() throws Exception {
+    CliConfig cliConfig = new CliConfig() {
+      @Override
+      public List<String> getParams() {
+        String[] params = new String[]{
+            "/replication/shards=[" 
+                + "{syncSource: 'localhost:27020', replSetName: shard1},"
+                + "{syncSource: 'localhost:27030', replSetName: shard2, dumpPath: /tmp/dump2}"
+                + "]"
+        };
+        return Arrays.asList(params);
+      }
+    };
+    Config config = CliConfigUtils.readConfig(cliConfig);
+
+    Assert.assertNull("/replication/shards/0/dumpPath has different value than that specified", config.getReplication().getShardList().get(0).getDumpPath());
+    Assert.assertEquals("/replication/shards/1/dumpPath has different value than that specified", "/tmp/dump2", config.getReplication().getShardList().get(1).getDumpPath());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testReplicationWithDumpPathAndShards() throws Exception {
+    CliConfig cliConfig = new CliConfig() {
+      @Override
+      public List<String> getParams() {
+        String[] params = new String[]{
+            "/replication/dumpPath=/tmp/dump",
+            "/replication/shards=[" 
+                + "{syncSource: 'localhost:27020', replSetName: shard1},"
+                + "{syncSource: 'localhost:27030', replSetName: shard2}"
+                + "]"
+        };
+        return Arrays.asList(params);
+      }
+    };
+    CliConfigUtils.readConfig(cliConfig);
+  }
+
   @Test
   public void testReplicationFilteringWithShardsMerged() throws Exception {
     CliConfig cliConfig = new CliConfig() {
@@ -35,6 +35,7 @@ import com.torodb.kvdocument.values.KvValue;
 import com.torodb.mongodb.repl.ConsistencyHandler;
 import org.apache.logging.log4j.Logger;
 
+import java.util.Collection;
 import java.util.Optional;
 import java.util.concurrent.ThreadFactory;
 
@@ -42,6 +43,7 @@ public abstract class AbstractConsistencyHandler extends IdleTorodbService
     implements ConsistencyHandler {
 
   private boolean consistent;
+  private boolean loaded;
   private final BackendService backendService;
   private final Retrier retrier;
 
@@ -56,7 +58,30 @@ public abstract class AbstractConsistencyHandler extends IdleTorodbService
 
   @Override
   protected void startUp() throws Exception {
-    loadConsistent();
+    if (!loaded) {
+      try (BackendConnection conn = backendService.openConnection();
+          BackendTransaction trans = conn.openReadOnlyTransaction()) {
+        loadConsistent(trans);
+      }
+    }
+  }
+
+  /**
+   * Reads the consistent state of all the given handlers using a single read only transaction, so
+   * they do not have to read it one by one when they are started.
+   *
+   * <p>It must be called before the handlers are started.
+   */
+  static void loadConsistent(BackendService backendService,
+      Collection<? extends AbstractConsistencyHandler> handlers) {
+    try (BackendConnection conn = backendService.openConnection();
+        BackendTransaction trans = conn.openReadOnlyTransaction()) {
+      for (AbstractConsistencyHandler handler : handlers) {
+        Preconditions.checkState(handler.state() == State.NEW,
+            "The consistency handler service has already been started");
+        handler.loadConsistent(trans);
+      }
+    }
   }
 
   @Override
@@ -77,14 +102,11 @@ public abstract class AbstractConsistencyHandler extends IdleTorodbService
     logger.info("Consistent state has been set to '" + consistent + "'");
   }
 
-  private void loadConsistent() {
-    try (BackendConnection conn = backendService.openConnection();
-        BackendTransaction trans = conn.openReadOnlyTransaction()) {
-      Optional<KvValue<?>> valueOpt = trans.readMetaInfo(getConsistencyKey());
-      if (!valueOpt.isPresent()) {
-        consistent = false;
-        return;
-      }
+  private void loadConsistent(BackendTransaction trans) {
+    Optional<KvValue<?>> valueOpt = trans.readMetaInfo(getConsistencyKey());
+    if (!valueOpt.isPresent()) {
+      consistent = false;
+    } else {
       KvValue<?> value = valueOpt.get();
       if (!value.getType().equals(BooleanType.INSTANCE)) {
         throw new IllegalStateException("Unexpected consistency value "
@@ -93,6 +115,7 @@ public abstract class AbstractConsistencyHandler extends IdleTorodbService
       }
       consistent = ((KvBoolean) value).getPrimitiveValue();
     }
+    loaded = true;
   }
 
   private void flushConsistentState() throws RollbackException, RetrierGiveUpException {
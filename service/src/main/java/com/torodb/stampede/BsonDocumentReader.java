@@ -0,0 +1,85 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.torodb.stampede;
+
+import com.google.common.io.ByteStreams;
+import org.bson.RawBsonDocument;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the BSON documents stored one after the other on a stream, as they are written on the
+ * <em>.bson</em> files generated by mongodump.
+ *
+ * <p>Documents are not decoded when read. They are returned as {@link RawBsonDocument raw
+ * documents} that wrap the bytes read from the stream.
+ */
+class BsonDocumentReader implements Closeable {
+
+  /**
+   * The max size of a document stored on MongoDB plus the space reserved by MongoDB for internal
+   * use.
+   */
+  private static final int MAX_DOCUMENT_SIZE = 16 * 1024 * 1024 + 16 * 1024;
+  private static final int SIZE_LENGTH = 4;
+
+  private final InputStream input;
+  private final byte[] sizeBuffer = new byte[SIZE_LENGTH];
+
+  BsonDocumentReader(InputStream input) {
+    this.input = input;
+  }
+
+  /**
+   * Returns the next document on the stream or null if the end of the stream has been reached.
+   *
+   * @throws IOException if there is an error while reading the stream or the stream contains a
+   *                     truncated or malformed document
+   */
+  RawBsonDocument next() throws IOException {
+    int read = ByteStreams.read(input, sizeBuffer, 0, SIZE_LENGTH);
+    if (read == 0) {
+      return null;
+    }
+    if (read < SIZE_LENGTH) {
+      throw new EOFException("Found a truncated BSON document at the end of the stream");
+    }
+    int size = (sizeBuffer[0] & 0xff)
+        | (sizeBuffer[1] & 0xff) << 8
+        | (sizeBuffer[2] & 0xff) << 16
+        | (sizeBuffer[3] & 0xff) << 24;
+    if (size <= SIZE_LENGTH || size > MAX_DOCUMENT_SIZE) {
+      throw new IOException("Found a BSON document with an illegal size of " + size + " bytes");
+    }
+
+    byte[] bytes = new byte[size];
+    System.arraycopy(sizeBuffer, 0, bytes, 0, SIZE_LENGTH);
+    ByteStreams.readFully(input, bytes, SIZE_LENGTH, size - SIZE_LENGTH);
+
+    return new RawBsonDocument(bytes);
+  }
+
+  @Override
+  public void close() throws IOException {
+    input.close();
+  }
+}
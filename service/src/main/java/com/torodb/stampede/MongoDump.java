@@ -0,0 +1,217 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.torodb.stampede;
+
+import com.google.common.io.CharStreams;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonDouble;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A directory created with {@code mongodump --oplog}.
+ *
+ * <p>Each database is stored on its own directory, where each collection is stored on a
+ * <em>&lt;collection&gt;.bson</em> file that contains its documents and a
+ * <em>&lt;collection&gt;.metadata.json</em> file that contains its indexes. The oplog entries
+ * generated while the dump was being created are stored on <em>oplog.bson</em>, at the root of
+ * the dump. Files compressed with {@code mongodump --gzip} are also supported.
+ */
+class MongoDump {
+
+  private static final String BSON_EXTENSION = ".bson";
+  private static final String METADATA_EXTENSION = ".metadata.json";
+  private static final String GZIP_EXTENSION = ".gz";
+  private static final String OPLOG_FILE = "oplog" + BSON_EXTENSION;
+  /**
+   * Dumps are read sequentially, so big buffers are used to reduce the number of reads.
+   */
+  private static final int READ_BUFFER_SIZE = 1024 * 1024;
+
+  private final Path root;
+
+  MongoDump(Path root) {
+    this.root = root;
+  }
+
+  Path getRoot() {
+    return root;
+  }
+
+  List<String> getDatabases() throws IOException {
+    if (!Files.isDirectory(root)) {
+      throw new IOException("Dump " + root + " is not a directory");
+    }
+    try (Stream<Path> children = Files.list(root)) {
+      return children.filter(Files::isDirectory)
+          .map(child -> child.getFileName().toString())
+          .sorted()
+          .collect(Collectors.toList());
+    }
+  }
+
+  /**
+   * Returns the collections stored on the given database directory.
+   *
+   * @throws IOException if a collection is stored both compressed and uncompressed, as it is not
+   *                     possible to know which one has to be loaded
+   */
+  List<String> getCollections(String database) throws IOException {
+    List<String> fileNames;
+    try (Stream<Path> children = Files.list(root.resolve(database))) {
+      fileNames = children.map(child -> child.getFileName().toString())
+          .filter(fileName -> fileName.endsWith(BSON_EXTENSION)
+              || fileName.endsWith(BSON_EXTENSION + GZIP_EXTENSION))
+          .sorted()
+          .collect(Collectors.toList());
+    }
+    Set<String> collections = new TreeSet<>();
+    for (String fileName : fileNames) {
+      String collection = fileName.substring(0, fileName.lastIndexOf(BSON_EXTENSION));
+      if (!collections.add(collection)) {
+        throw new IOException("Collection " + database + "." + collection + " is stored both as "
+            + collection + BSON_EXTENSION + " and " + collection + BSON_EXTENSION
+            + GZIP_EXTENSION + " on dump " + root);
+      }
+    }
+    return new ArrayList<>(collections);
+  }
+
+  BsonDocumentReader openCollection(String database, String collection) throws IOException {
+    Optional<Path> file = findFile(root.resolve(database), collection + BSON_EXTENSION);
+    if (!file.isPresent()) {
+      throw new IOException("There is no data file for collection " + database + "."
+          + collection + " on dump " + root);
+    }
+    return new BsonDocumentReader(open(file.get()));
+  }
+
+  /**
+   * Returns the indexes of the given collection as they are stored on its metadata file, or an
+   * empty list if the collection has no metadata file.
+   */
+  List<BsonDocument> getIndexes(String database, String collection) throws IOException {
+    Optional<Path> file = findFile(root.resolve(database), collection + METADATA_EXTENSION);
+    if (!file.isPresent()) {
+      return new ArrayList<>();
+    }
+
+    BsonDocument metadata;
+    try (Reader reader = new InputStreamReader(open(file.get()), StandardCharsets.UTF_8)) {
+      metadata = BsonDocument.parse(CharStreams.toString(reader));
+    }
+
+    List<BsonDocument> result = new ArrayList<>();
+    for (BsonValue index : metadata.getArray("indexes", new BsonArray())) {
+      if (index.isDocument()) {
+        BsonDocument normalized = normalize(index).asDocument();
+        if (!normalized.containsKey("ns")) {
+          normalized.put("ns", new BsonString(database + "." + collection));
+        }
+        result.add(normalized);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the first entry of the oplog stored on the dump, which is the point from which the
+   * replication has to continue once the dump is loaded.
+   */
+  Optional<BsonDocument> getFirstOplogEntry() throws IOException {
+    Optional<Path> file = findFile(root, OPLOG_FILE);
+    if (!file.isPresent()) {
+      return Optional.empty();
+    }
+    try (BsonDocumentReader reader = new BsonDocumentReader(open(file.get()))) {
+      return Optional.ofNullable(reader.next());
+    }
+  }
+
+  private Optional<Path> findFile(Path directory, String fileName) {
+    Path file = directory.resolve(fileName);
+    if (Files.isRegularFile(file)) {
+      return Optional.of(file);
+    }
+    Path compressedFile = directory.resolve(fileName + GZIP_EXTENSION);
+    if (Files.isRegularFile(compressedFile)) {
+      return Optional.of(compressedFile);
+    }
+    return Optional.empty();
+  }
+
+  private InputStream open(Path file) throws IOException {
+    InputStream input = Files.newInputStream(file);
+    try {
+      if (file.getFileName().toString().endsWith(GZIP_EXTENSION)) {
+        input = new GZIPInputStream(input, READ_BUFFER_SIZE);
+      }
+      return new BufferedInputStream(input, READ_BUFFER_SIZE);
+    } catch (IOException ex) {
+      input.close();
+      throw ex;
+    }
+  }
+
+  /**
+   * Replaces the <em>$numberInt</em> and <em>$numberDouble</em> values written by modern
+   * versions of mongodump on metadata files, which are not understood by the JSON parser.
+   */
+  private static BsonValue normalize(BsonValue value) {
+    if (value.isArray()) {
+      BsonArray result = new BsonArray();
+      for (BsonValue element : value.asArray()) {
+        result.add(normalize(element));
+      }
+      return result;
+    }
+    if (!value.isDocument()) {
+      return value;
+    }
+    BsonDocument document = value.asDocument();
+    if (document.size() == 1 && document.isString("$numberInt")) {
+      return new BsonInt32(Integer.parseInt(document.getString("$numberInt").getValue()));
+    }
+    if (document.size() == 1 && document.isString("$numberDouble")) {
+      return new BsonDouble(Double.parseDouble(document.getString("$numberDouble").getValue()));
+    }
+    BsonDocument result = new BsonDocument();
+    document.forEach((key, child) -> result.put(key, normalize(child)));
+    return result;
+  }
+}
@@ -0,0 +1,268 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.torodb.stampede;
+
+import com.google.common.collect.ImmutableList;
+import com.torodb.core.exceptions.user.UnsupportedCompoundIndexException;
+import com.torodb.core.exceptions.user.UnsupportedUniqueIndexException;
+import com.torodb.core.exceptions.user.UserException;
+import com.torodb.core.language.AttributeReference;
+import com.torodb.core.transaction.metainf.FieldIndexOrdering;
+import com.torodb.kvdocument.conversion.mongowp.MongoWpConverter;
+import com.torodb.kvdocument.values.KvDocument;
+import com.torodb.mongodb.commands.pojos.index.IndexOptions;
+import com.torodb.mongodb.commands.pojos.index.type.AscIndexType;
+import com.torodb.mongodb.commands.pojos.index.type.DescIndexType;
+import com.torodb.mongodb.repl.filters.ReplicationFilters;
+import com.torodb.mongowp.OpTime;
+import com.torodb.mongowp.bson.org.bson.utils.MongoBsonTranslator;
+import com.torodb.mongowp.exceptions.MongoException;
+import com.torodb.torod.IndexFieldInfo;
+import com.torodb.torod.SharedWriteTorodTransaction;
+import com.torodb.torod.TorodConnection;
+import com.torodb.torod.TorodServer;
+import org.apache.logging.log4j.Logger;
+import org.bson.BsonDocument;
+import org.bson.BsonInt64;
+import org.bson.RawBsonDocument;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Loads a {@link MongoDump} on a {@link TorodServer}, as a replacement of the initial sync of a
+ * replica set.
+ *
+ * <p>Each database is loaded with the data import mode enabled, so its indexes are built once all
+ * its documents have been inserted. Once the data is loaded, the last applied oplog entry is set
+ * to the first entry of the dump oplog, so the replication continues from the point where the dump
+ * started. The operations executed while the dump was being created are applied again, which is
+ * safe because oplog operations are idempotent.
+ */
+class MongoDumpLoader {
+
+  private static final int DOCS_PER_TRANSACTION = 1000;
+  private static final String LOCAL_DATABASE = "local";
+  private static final String SYSTEM_COLLECTION_PREFIX = "system.";
+  private static final String ID_INDEX_NAME = "_id_";
+  private static final String ID_FIELD = "_id";
+  //These names mirror the ones used by OplogManager to store the replication progress and must
+  //be kept in sync with it, otherwise the replication would not continue from the dump oplog
+  private static final String OPLOG_STATE_DATABASE = "torodb";
+  private static final String OPLOG_STATE_COLLECTION = "oplog.replication";
+  private static final String OPLOG_STATE_KEY = "lastAppliedOplogEntry";
+  private static final String OPLOG_STATE_HASH = "hash";
+  private static final String OPLOG_STATE_OPTIME_I = "optime_i";
+  private static final String OPLOG_STATE_OPTIME_T = "optime_t";
+
+  private final Logger logger;
+  private final TorodServer torodServer;
+  private final ReplicationFilters replFilters;
+
+  MongoDumpLoader(Logger logger, TorodServer torodServer, ReplicationFilters replFilters) {
+    this.logger = logger;
+    this.torodServer = torodServer;
+    this.replFilters = replFilters;
+  }
+
+  void load(MongoDump dump) throws IOException, UserException {
+    BsonDocument oplogStart = dump.getFirstOplogEntry()
+        .orElseThrow(() -> new IllegalArgumentException("There is no oplog on dump "
+            + dump.getRoot() + ". Dumps used to synchronize a replica set must be created with "
+            + "mongodump --oplog"));
+
+    logger.info("Loading dump {}", dump.getRoot());
+    for (String database : dump.getDatabases()) {
+      if (LOCAL_DATABASE.equals(database) || !replFilters.getDatabaseFilter().filter(database)) {
+        logger.info("Skipping database {}", database);
+        continue;
+      }
+      loadDatabase(dump, database);
+    }
+
+    storeOplogStart(oplogStart);
+    logger.info("Dump {} loaded", dump.getRoot());
+  }
+
+  private void loadDatabase(MongoDump dump, String database) throws IOException, UserException {
+    logger.info("Loading database {}", database);
+    torodServer.enableDataImportMode(database).join();
+    try {
+      for (String collection : dump.getCollections(database)) {
+        if (collection.startsWith(SYSTEM_COLLECTION_PREFIX)
+            || !replFilters.getNamespaceFilter().filter(database, collection)) {
+          logger.info("Skipping collection {}.{}", database, collection);
+          continue;
+        }
+        try (TorodConnection conn = torodServer.openConnection()) {
+          loadCollection(conn, dump, database, collection);
+          loadIndexes(conn, dump, database, collection);
+        }
+      }
+    } finally {
+      torodServer.disableDataImportMode(database).join();
+    }
+    logger.info("Database {} loaded", database);
+  }
+
+  private void loadCollection(TorodConnection conn, MongoDump dump, String database,
+      String collection) throws IOException, UserException {
+    long loadedDocs = 0;
+    try (BsonDocumentReader reader = dump.openCollection(database, collection)) {
+      try (SharedWriteTorodTransaction trans = conn.openWriteTransaction(false)) {
+        if (!trans.existsCollection(database, collection)) {
+          //Like collections created by the replication, each collection has a unique _id index
+          trans.createIndex(database, collection, ID_INDEX_NAME,
+              ImmutableList.of(
+                  new IndexFieldInfo(new AttributeReference(
+                      Arrays.asList(new AttributeReference.ObjectKey(ID_FIELD))),
+                      FieldIndexOrdering.ASC.isAscending())), true);
+          trans.createCollection(database, collection);
+          trans.commit();
+        }
+      }
+
+      List<KvDocument> batch = new ArrayList<>(DOCS_PER_TRANSACTION);
+      for (RawBsonDocument doc = reader.next(); doc != null; doc = reader.next()) {
+        batch.add(MongoWpConverter.toEagerDocument(MongoBsonTranslator.translate(doc)));
+        if (batch.size() == DOCS_PER_TRANSACTION) {
+          insert(conn, database, collection, batch);
+          loadedDocs += batch.size();
+          batch.clear();
+        }
+      }
+      if (!batch.isEmpty()) {
+        insert(conn, database, collection, batch);
+        loadedDocs += batch.size();
+      }
+    }
+    logger.info("{} documents loaded on {}.{}", loadedDocs, database, collection);
+  }
+
+  private void insert(TorodConnection conn, String database, String collection,
+      List<KvDocument> docs) throws UserException {
+    try (SharedWriteTorodTransaction trans = conn.openWriteTransaction(false)) {
+      trans.insert(database, collection, docs.stream());
+      trans.commit();
+    }
+  }
+
+  private void loadIndexes(TorodConnection conn, MongoDump dump, String database,
+      String collection) throws IOException, UserException {
+    for (BsonDocument indexDoc : dump.getIndexes(database, collection)) {
+      IndexOptions index;
+      try {
+        index = IndexOptions.unmarshall(MongoBsonTranslator.translate(indexDoc));
+      } catch (MongoException ex) {
+        logger.warn("Skipping not valid index {} on {}.{}: {}", indexDoc, database, collection,
+            ex.getLocalizedMessage());
+        continue;
+      }
+
+      if (ID_INDEX_NAME.equals(index.getName())) {
+        //It has been created with the collection, as unique, while mongodump does not mark it so
+        continue;
+      }
+
+      if (!replFilters.getIndexFilter().filter(index)) {
+        logger.info("Skipping filtered index {}.{}.{}.", database, collection, index.getName());
+        continue;
+      }
+
+      Optional<List<IndexFieldInfo>> fields = getIndexFields(index);
+      if (!fields.isPresent()) {
+        logger.info("Index {}.{}.{} has a not supported type. Skipping index.", database,
+            collection, index.getName());
+        continue;
+      }
+
+      try (SharedWriteTorodTransaction trans = conn.openWriteTransaction(false)) {
+        logger.info("Creating index {} on collection {}.{}", index.getName(), database,
+            collection);
+        trans.createIndex(database, collection, index.getName(), fields.get(), index.isUnique());
+        trans.commit();
+      } catch (UnsupportedCompoundIndexException ex) {
+        logger.info("Compound indexes are not supported. Skipping index {}.", index.getName());
+      } catch (UnsupportedUniqueIndexException ex) {
+        logger.info("Unique index with keys on distinct subdocuments is not supported. "
+            + "Skipping index {}.", index.getName());
+      }
+    }
+  }
+
+  /**
+   * Returns the fields of the given index, or an empty optional if it has a key whose type is not
+   * supported.
+   */
+  static Optional<List<IndexFieldInfo>> getIndexFields(IndexOptions index) {
+    List<IndexFieldInfo> fields = new ArrayList<>(index.getKeys().size());
+    for (IndexOptions.Key key : index.getKeys()) {
+      boolean ascending;
+      if (key.getType() instanceof AscIndexType) {
+        ascending = true;
+      } else if (key.getType() instanceof DescIndexType) {
+        ascending = false;
+      } else {
+        return Optional.empty();
+      }
+
+      AttributeReference.Builder attRefBuilder = new AttributeReference.Builder();
+      for (String subKey : key.getKeys()) {
+        attRefBuilder.addObjectKey(subKey);
+      }
+      fields.add(new IndexFieldInfo(attRefBuilder.build(), ascending));
+    }
+    return Optional.of(fields);
+  }
+
+  /**
+   * Stores the given oplog entry as the last applied one, using the same format used by the
+   * replication layer to track the replication progress.
+   */
+  private void storeOplogStart(BsonDocument oplogEntry) throws UserException {
+    OpTime opTime;
+    try {
+      opTime = OpTime.fromOplogEntry(MongoBsonTranslator.translate(oplogEntry));
+    } catch (MongoException ex) {
+      throw new IllegalArgumentException("The first entry of the dump oplog is not a valid oplog "
+          + "entry", ex);
+    }
+    long hash = oplogEntry.getInt64("h", new BsonInt64(0)).getValue();
+
+    BsonDocument state = new BsonDocument(OPLOG_STATE_KEY, new BsonDocument()
+        .append(OPLOG_STATE_HASH, new BsonInt64(hash))
+        .append(OPLOG_STATE_OPTIME_I, new BsonInt64(opTime.toOldBson().getMillisFromUnix()))
+        .append(OPLOG_STATE_OPTIME_T, new BsonInt64(opTime.getTerm())));
+
+    try (TorodConnection conn = torodServer.openConnection();
+        SharedWriteTorodTransaction trans = conn.openWriteTransaction(false)) {
+      if (trans.existsCollection(OPLOG_STATE_DATABASE, OPLOG_STATE_COLLECTION)) {
+        trans.dropCollection(OPLOG_STATE_DATABASE, OPLOG_STATE_COLLECTION);
+      }
+      trans.insert(OPLOG_STATE_DATABASE, OPLOG_STATE_COLLECTION,
+          Stream.of(MongoWpConverter.toEagerDocument(MongoBsonTranslator.translate(state))));
+      trans.commit();
+    }
+    logger.info("Replication will continue from {}", opTime);
+  }
+}
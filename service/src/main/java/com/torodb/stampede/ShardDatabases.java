@@ -0,0 +1,58 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede;
+
+import java.util.Collection;
+
+/**
+ * Utility methods used to know which databases are owned by each replication shard.
+ *
+ * <p>When more than one shard is replicated, each shard stores its databases on the backend with
+ * the shard id appended to the database name (<em>foo</em> on shard <em>s1</em> is stored as
+ * <em>foo_s1</em>), so a database is owned by a shard if its name ends with the shard suffix.
+ */
+final class ShardDatabases {
+
+  private static final String SEPARATOR = "_";
+
+  private ShardDatabases() {
+  }
+
+  static boolean isOwnedBy(String database, String shardId) {
+    return database.endsWith(SEPARATOR + shardId);
+  }
+
+  static boolean isOwnedByAny(String database, Collection<String> shardIds) {
+    return shardIds.stream().anyMatch(shardId -> isOwnedBy(database, shardId));
+  }
+
+  /**
+   * Returns true if there is at least one database name that could be owned by more than one of
+   * the given shards, like it happens with shards <em>s1</em> and <em>a_s1</em>.
+   */
+  static boolean isAmbiguous(Collection<String> shardIds) {
+    for (String shardId : shardIds) {
+      for (String otherShardId : shardIds) {
+        if (!shardId.equals(otherShardId) && isOwnedBy(SEPARATOR + shardId, otherShardId)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+}
@@ -25,8 +25,10 @@ import com.torodb.mongodb.repl.ConsistencyHandler;
 import com.torodb.mongodb.repl.filters.ReplicationFilters;
 import com.torodb.mongodb.repl.sharding.MongoDbShardingConfig;
 
+import java.nio.file.Path;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.ThreadFactory;
 import java.util.function.Function;
 
@@ -38,15 +40,17 @@ public class StampedeConfig {
   private final boolean unsharded;
   private final List<ShardConfigBuilder> shardConfigBuilders;
   private final LoggerFactory lifecycleLoggerFactory;
+  private final boolean selectiveResync;
 
   private StampedeConfig(Injector essentialInjector,
       Function<BundleConfig, BackendBundle> backendBundleGenerator,
       ReplicationFilters userReplFilters, List<ShardConfigBuilder> shardConfigBuilders,
-      LoggerFactory lf) {
+      boolean selectiveResync, LoggerFactory lf) {
     this.essentialInjector = essentialInjector;
     this.backendBundleGenerator = backendBundleGenerator;
     this.userReplFilters = userReplFilters;
     this.shardConfigBuilders = shardConfigBuilders;
+    this.selectiveResync = selectiveResync;
     this.lifecycleLoggerFactory = lf;
     this.unsharded = false;
   }
@@ -59,6 +63,7 @@ public class StampedeConfig {
     this.backendBundleGenerator = backendBundleGenerator;
     this.userReplFilters = userReplFilters;
     this.shardConfigBuilders = Collections.singletonList(shardConfigBuilder);
+    this.selectiveResync = false;
     this.lifecycleLoggerFactory = lf;
     this.unsharded = true;
   }
@@ -66,9 +71,9 @@ public class StampedeConfig {
   public static StampedeConfig createShardingConfig(Injector essentialInjector,
       Function<BundleConfig, BackendBundle> backendBundleGenerator,
       ReplicationFilters userReplFilters, List<ShardConfigBuilder> shardConfigBuilders,
-      LoggerFactory lf) {
+      boolean selectiveResync, LoggerFactory lf) {
     return new StampedeConfig(essentialInjector, backendBundleGenerator, userReplFilters,
-        shardConfigBuilders, lf);
+        shardConfigBuilders, selectiveResync, lf);
   }
 
   public static StampedeConfig createUnshardedConfig(Injector essentialInjector,
@@ -91,6 +96,16 @@ public class StampedeConfig {
     return unsharded;
   }
 
+  /**
+   * Returns true if, when only some shards are inconsistent, only the data owned by these shards
+   * should be dropped and resynchronized.
+   *
+   * <p>It is always false on unsharded configurations.
+   */
+  public boolean isSelectiveResync() {
+    return selectiveResync;
+  }
+
   /**
    * Returns a function used to create {@link BackendBundle backend bundles} given a generic
    * bundle configuration.
@@ -117,7 +132,15 @@ public class StampedeConfig {
 
   public static interface ShardConfigBuilder {
     String getShardId();
-    
+
+    /**
+     * Returns the path of a mongodump directory that must be loaded instead of cloning the shard
+     * from its sync source when the shard has to be synchronized from scratch.
+     */
+    default Optional<Path> getDumpPath() {
+      return Optional.empty();
+    }
+
     MongoDbShardingConfig.ShardConfig createConfig(ConsistencyHandler consistencyHandler);
   }
 }
@@ -18,6 +18,7 @@
 package com.torodb.stampede;
 
 import com.google.common.util.concurrent.AbstractIdleService;
+import com.google.common.util.concurrent.ServiceManager;
 import com.google.inject.Injector;
 import com.torodb.core.Shutdowner;
 import com.torodb.core.backend.BackendBundle;
@@ -29,6 +30,7 @@ import com.torodb.core.bundle.BundleConfig;
 import com.torodb.core.bundle.BundleConfigImpl;
 import com.torodb.core.exceptions.user.UserException;
 import com.torodb.core.logging.ComponentLoggerFactory;
+import com.torodb.core.logging.LoggerFactory;
 import com.torodb.core.retrier.Retrier;
 import com.torodb.core.retrier.RetrierGiveUpException;
 import com.torodb.core.supervision.Supervisor;
@@ -37,17 +39,27 @@ import com.torodb.mongodb.repl.ConsistencyHandler;
 import com.torodb.mongodb.repl.sharding.MongoDbShardingBundle;
 import com.torodb.mongodb.repl.sharding.MongoDbShardingConfig;
 import com.torodb.mongodb.repl.sharding.MongoDbShardingConfigBuilder;
+import com.torodb.mongodb.repl.sharding.isolation.db.DbIsolatorServer;
+import com.torodb.torod.SharedWriteTorodTransaction;
 import com.torodb.torod.SqlTorodBundle;
 import com.torodb.torod.SqlTorodConfig;
 import com.torodb.torod.TorodBundle;
+import com.torodb.torod.TorodConnection;
+import com.torodb.torod.TorodServer;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadFactory;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * This service is used to start and stop ToroDB Stampede.
@@ -105,11 +117,21 @@ public class StampedeService extends AbstractIdleService implements Supervisor {
         stampedeConfig.getThreadFactory()
     );
 
-    resolveInconsistencies(backendBundle, consistencyHandlers);
+    Set<String> inconsistentShards = getInconsistentShards(consistencyHandlers);
+    boolean selectiveResync = canResyncSelectively(consistencyHandlers, inconsistentShards);
+
+    if (!selectiveResync) {
+      resolveInconsistencies(backendBundle, consistencyHandlers, inconsistentShards);
+    }
 
     TorodBundle torodBundle = createTorodBundle(backendBundle);
     startBundle(torodBundle);
 
+    if (selectiveResync) {
+      resolveShardInconsistencies(torodBundle, consistencyHandlers, inconsistentShards);
+    }
+    loadDumps(torodBundle, consistencyHandlers);
+
     MongoDbShardingBundle shardingBundle = createShardingBundle(torodBundle, consistencyHandlers);
     startBundle(shardingBundle);
 
@@ -126,12 +148,19 @@ public class StampedeService extends AbstractIdleService implements Supervisor {
     logger.info("ToroDB Stampede has been shutted down");
   }
 
+  /**
+   * Creates and starts the consistency handlers of all shards.
+   *
+   * <p>The consistent state of every shard is read using a single backend transaction and then
+   * the handlers are started concurrently. If any of them cannot be started, this method fails as
+   * soon as the failure is detected.
+   */
   private Map<String, ConsistencyHandler> createConsistencyHandlers(BackendBundle backendBundle,
       ThreadFactory threadFactory) {
     Retrier retrier = essentialInjector.getInstance(Retrier.class);
     BackendService backendService = backendBundle.getExternalInterface().getBackendService();
 
-    Function<String, ConsistencyHandler> chSupplier;
+    Function<String, AbstractConsistencyHandler> chSupplier;
     if (stampedeConfig.getShardConfigBuilders().size() == 1) {
       chSupplier = (shardId) -> new DefaultConsistencyHandler(
           backendService, 
@@ -144,20 +173,19 @@ public class StampedeService extends AbstractIdleService implements Supervisor {
       );
     }
 
-    Map<String, ConsistencyHandler> result = new HashMap<>();
+    Map<String, AbstractConsistencyHandler> result = new HashMap<>();
 
     stampedeConfig.getShardConfigBuilders().stream()
         .map(StampedeConfig.ShardConfigBuilder::getShardId)
-        .forEachOrdered((shardId) -> {
-          ConsistencyHandler consistencyHandler = chSupplier.apply(shardId);
+        .forEachOrdered((shardId) -> result.put(shardId, chSupplier.apply(shardId)));
 
-          consistencyHandler.startAsync();
-          consistencyHandler.awaitRunning();
+    AbstractConsistencyHandler.loadConsistent(backendService, result.values());
 
-          result.put(shardId, consistencyHandler);
-        });
+    ServiceManager serviceManager = new ServiceManager(result.values());
+    serviceManager.startAsync();
+    serviceManager.awaitHealthy();
 
-    return result;
+    return Collections.unmodifiableMap(result);
   }
 
   private TorodBundle createTorodBundle(BackendBundle backendBundle) {
@@ -218,32 +246,123 @@ public class StampedeService extends AbstractIdleService implements Supervisor {
     shutdowner.addStopShutdownListener(bundle);
   }
 
-  private void resolveInconsistencies(BackendBundle backendBundle, 
-      Map<String, ConsistencyHandler> consistencyHandlers) throws UserException,
-      RetrierGiveUpException {
-
-    Optional<String> inconsistentShard = consistencyHandlers.entrySet().stream()
+  private Set<String> getInconsistentShards(
+      Map<String, ConsistencyHandler> consistencyHandlers) {
+    return consistencyHandlers.entrySet().stream()
         .filter(e -> !e.getValue().isConsistent())
         .map(Map.Entry::getKey)
-        .findAny();
+        .collect(Collectors.toCollection(TreeSet::new));
+  }
 
-    //TODO: Some improvements can be done so only the inconsistent shards are dropped
-    if (inconsistentShard.isPresent()) {
-      logger.warn("Found that replication shard {} is not consistent.",
-          inconsistentShard.orElse("unknown")
-      );
+  boolean canResyncSelectively(Map<String, ConsistencyHandler> consistencyHandlers,
+      Set<String> inconsistentShards) {
+    if (!stampedeConfig.isSelectiveResync() || stampedeConfig.isUnsharded()
+        || inconsistentShards.isEmpty()
+        || inconsistentShards.size() == consistencyHandlers.size()) {
+      return false;
+    }
+    if (ShardDatabases.isAmbiguous(consistencyHandlers.keySet())) {
+      logger.warn("Selective resync is disabled because there are shard names that are suffix of "
+          + "other shard names, so it is not possible to know which shard owns each database");
+      return false;
+    }
+    return true;
+  }
+
+  private void resolveInconsistencies(BackendBundle backendBundle,
+      Map<String, ConsistencyHandler> consistencyHandlers, Set<String> inconsistentShards)
+      throws UserException, RetrierGiveUpException {
+
+    if (!inconsistentShards.isEmpty()) {
+      logger.warn("Found that replication shards {} are not consistent.", inconsistentShards);
       logger.warn("Dropping user data.");
       dropUserData(backendBundle);
 
-      for (Map.Entry<String, ConsistencyHandler> entry : consistencyHandlers.entrySet()) {
-        String shardId = entry.getKey();
-        ConsistencyHandler consistencyHandler = entry.getValue();
-        Logger logger = new ComponentLoggerFactory("REPL-" + shardId)
-            .apply(this.getClass());
-        consistencyHandler.setConsistent(logger, false);
+      for (String shardId : consistencyHandlers.keySet()) {
+        setInconsistent(shardId, consistencyHandlers.get(shardId));
       }
     } else {
       logger.info("All replication shards are consistent");
     }
   }
+
+  /**
+   * Drops the databases owned by the inconsistent shards, so only these shards have to be
+   * resynchronized while the consistent ones keep replicating from where they were.
+   */
+  void resolveShardInconsistencies(TorodBundle torodBundle,
+      Map<String, ConsistencyHandler> consistencyHandlers, Set<String> inconsistentShards)
+      throws UserException, RetrierGiveUpException {
+    logger.warn("Found that replication shards {} are not consistent.", inconsistentShards);
+    logger.warn("Dropping user data of shards {}.", inconsistentShards);
+
+    TorodServer torodServer = torodBundle.getExternalInterface().getTorodServer();
+    try (TorodConnection conn = torodServer.openConnection();
+        SharedWriteTorodTransaction trans = conn.openWriteTransaction(false)) {
+      for (String database : trans.getDatabases()) {
+        if (ShardDatabases.isOwnedByAny(database, inconsistentShards)) {
+          logger.debug("Dropping database {}", database);
+          trans.dropDatabase(database);
+        }
+      }
+      trans.commit();
+    }
+
+    for (String shardId : inconsistentShards) {
+      setInconsistent(shardId, consistencyHandlers.get(shardId));
+    }
+  }
+
+  /**
+   * Loads the configured dumps on the shards that are not consistent, which are then marked as
+   * consistent so they continue replicating from the dump oplog instead of being cloned from their
+   * sync source.
+   */
+  private void loadDumps(TorodBundle torodBundle,
+      Map<String, ConsistencyHandler> consistencyHandlers)
+      throws IOException, UserException, RetrierGiveUpException {
+    TorodServer torodServer = torodBundle.getExternalInterface().getTorodServer();
+
+    for (StampedeConfig.ShardConfigBuilder shardConfBuilder
+        : stampedeConfig.getShardConfigBuilders()) {
+      String shardId = shardConfBuilder.getShardId();
+      ConsistencyHandler consistencyHandler = consistencyHandlers.get(shardId);
+      Optional<Path> dumpPath = shardConfBuilder.getDumpPath();
+      if (!dumpPath.isPresent() || consistencyHandler.isConsistent()) {
+        continue;
+      }
+
+      LoggerFactory shardLoggerFactory = new ComponentLoggerFactory("REPL-" + shardId);
+      Logger shardLogger = shardLoggerFactory.apply(MongoDumpLoader.class);
+      if (stampedeConfig.isUnsharded()) {
+        loadDump(shardLogger, torodServer, dumpPath.get());
+      } else {
+        DbIsolatorServer shardServer = new DbIsolatorServer(shardId, torodServer, threadFactory,
+            shardLoggerFactory);
+        shardServer.startAsync();
+        shardServer.awaitRunning();
+        try {
+          loadDump(shardLogger, shardServer, dumpPath.get());
+        } finally {
+          shardServer.stopAsync();
+          shardServer.awaitTerminated();
+        }
+      }
+      consistencyHandler.setConsistent(shardLogger, true);
+    }
+  }
+
+  private void loadDump(Logger logger, TorodServer torodServer, Path dumpPath)
+      throws IOException, UserException {
+    MongoDumpLoader loader = new MongoDumpLoader(logger, torodServer,
+        stampedeConfig.getUserReplicationFilters());
+    loader.load(new MongoDump(dumpPath));
+  }
+
+  private void setInconsistent(String shardId, ConsistencyHandler consistencyHandler)
+      throws RetrierGiveUpException {
+    Logger logger = new ComponentLoggerFactory("REPL-" + shardId)
+        .apply(this.getClass());
+    consistencyHandler.setConsistent(logger, false);
+  }
 }
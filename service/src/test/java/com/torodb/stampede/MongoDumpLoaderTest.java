@@ -0,0 +1,310 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.torodb.stampede;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.util.concurrent.Service;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.torodb.backend.derby.DerbyDbBackendBundle;
+import com.torodb.backend.derby.driver.DerbyDbBackendConfigBuilder;
+import com.torodb.core.backend.BackendBundle;
+import com.torodb.core.bundle.BundleConfig;
+import com.torodb.core.bundle.BundleConfigImpl;
+import com.torodb.core.guice.EssentialModule;
+import com.torodb.core.language.AttributeReference;
+import com.torodb.core.logging.DefaultLoggerFactory;
+import com.torodb.core.metrics.DisabledMetricRegistry;
+import com.torodb.core.retrier.Retrier;
+import com.torodb.core.supervision.SupervisorDecision;
+import com.torodb.mongodb.commands.pojos.index.IndexOptions;
+import com.torodb.mongodb.core.MongoDbCoreBundle;
+import com.torodb.mongodb.core.MongoDbCoreConfig;
+import com.torodb.mongodb.filters.DatabaseFilter;
+import com.torodb.mongodb.filters.FilterResult;
+import com.torodb.mongodb.filters.IndexFilter;
+import com.torodb.mongodb.filters.NamespaceFilter;
+import com.torodb.mongodb.repl.OplogManager;
+import com.torodb.mongodb.repl.ReplMetrics;
+import com.torodb.mongodb.repl.filters.ReplicationFilters;
+import com.torodb.mongowp.OpTime;
+import com.torodb.mongowp.bson.org.bson.utils.MongoBsonTranslator;
+import com.torodb.mongowp.exceptions.MongoException;
+import com.torodb.torod.IndexFieldInfo;
+import com.torodb.torod.IndexInfo;
+import com.torodb.torod.ReadOnlyTorodTransaction;
+import com.torodb.torod.SqlTorodBundle;
+import com.torodb.torod.SqlTorodConfig;
+import com.torodb.torod.TorodBundle;
+import com.torodb.torod.TorodConnection;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonString;
+import org.bson.BsonTimestamp;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.rules.TestName;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class MongoDumpLoaderTest {
+
+  private static final String EXCLUDED_DATABASE = "excluded";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+  @Rule
+  public TestName testName = new TestName();
+
+  private final List<Service> services = new ArrayList<>();
+  private Injector essentialInjector;
+  private BundleConfig bundleConfig;
+  private TorodBundle torodBundle;
+
+  @Before
+  public void setUp() throws SQLException {
+    essentialInjector = Guice.createInjector(new EssentialModule(
+        DefaultLoggerFactory.getInstance(),
+        () -> true,
+        Clock.systemUTC())
+    );
+    bundleConfig = new BundleConfigImpl(essentialInjector,
+        (supervised, error) -> SupervisorDecision.STOP);
+
+    String dbName = getClass().getSimpleName() + "_" + testName.getMethodName();
+    BackendBundle backendBundle = new DerbyDbBackendBundle(
+        new DerbyDbBackendConfigBuilder(bundleConfig)
+            .setDbName(dbName)
+            .build()
+    );
+    start(backendBundle);
+    fixDocPartIndexColumnTable(dbName);
+    torodBundle = new SqlTorodBundle(new SqlTorodConfig(
+        backendBundle,
+        essentialInjector,
+        bundleConfig.getSupervisor()
+    ));
+    start(torodBundle);
+  }
+
+  @After
+  public void tearDown() {
+    for (int i = services.size() - 1; i >= 0; i--) {
+      services.get(i).stopAsync();
+      services.get(i).awaitTerminated();
+    }
+  }
+
+  @Test
+  public void testLoad() throws Exception {
+    Path root = temporaryFolder.getRoot().toPath();
+    Path database = Files.createDirectory(root.resolve("test"));
+    writeBson(database.resolve("foo.bson"),
+        new BsonDocument("_id", new BsonInt32(1)).append("name", new BsonString("a")),
+        new BsonDocument("_id", new BsonInt32(2)).append("name", new BsonString("b")),
+        new BsonDocument("_id", new BsonInt32(3)).append("name", new BsonString("c")));
+    //mongodump does not mark the _id index as unique
+    Files.write(database.resolve("foo.metadata.json"), ("{\"options\":{},\"indexes\":["
+        + "{\"v\":2,\"key\":{\"_id\":1},\"name\":\"_id_\"},"
+        + "{\"v\":2,\"key\":{\"name\":1},\"name\":\"name_1\"},"
+        + "{\"v\":2,\"key\":{\"loc\":\"2dsphere\"},\"name\":\"loc_2dsphere\"}]}")
+        .getBytes(StandardCharsets.UTF_8));
+    writeBson(database.resolve("bar.bson"),
+        new BsonDocument("_id", new BsonInt32(1)));
+    writeBson(database.resolve("system.views.bson"),
+        new BsonDocument("_id", new BsonString("test.view")));
+    writeBson(Files.createDirectory(root.resolve(EXCLUDED_DATABASE)).resolve("bar.bson"),
+        new BsonDocument("_id", new BsonInt32(1)));
+    writeBson(Files.createDirectory(root.resolve("local")).resolve("startup_log.bson"),
+        new BsonDocument("_id", new BsonString("host")));
+    BsonDocument oplogEntry = new BsonDocument("ts", new BsonTimestamp(1500000000, 7))
+        .append("t", new BsonInt64(3))
+        .append("h", new BsonInt64(1234));
+    writeBson(root.resolve("oplog.bson"), oplogEntry);
+
+    new MongoDumpLoader(DefaultLoggerFactory.get(MongoDumpLoader.class),
+        torodBundle.getExternalInterface().getTorodServer(), createReplicationFilters())
+        .load(new MongoDump(root));
+
+    try (TorodConnection conn = torodBundle.getExternalInterface().getTorodServer()
+        .openConnection();
+        ReadOnlyTorodTransaction trans = conn.openReadOnlyTransaction()) {
+      assertEquals(3, trans.countAll("test", "foo"));
+      assertEquals(1, trans.countAll("test", "bar"));
+      Set<String> indexes = trans.getIndexesInfo("test", "foo")
+          .map(IndexInfo::getName)
+          .collect(Collectors.toSet());
+      assertTrue("Supported index has not been created", indexes.contains("name_1"));
+      assertFalse("Not supported index has been created", indexes.contains("loc_2dsphere"));
+      assertUniqueIdIndex(trans, "test", "foo");
+      assertUniqueIdIndex(trans, "test", "bar");
+      assertFalse("System collection has been loaded",
+          trans.existsCollection("test", "system.views"));
+      assertFalse("Filtered database has been loaded", trans.existsDatabase(EXCLUDED_DATABASE));
+      assertFalse("Local database has been loaded", trans.existsDatabase("local"));
+    }
+
+    MongoDbCoreBundle mongoDbCoreBundle = new MongoDbCoreBundle(
+        MongoDbCoreConfig.simpleNonServerConfig(
+            torodBundle,
+            DefaultLoggerFactory.getInstance(),
+            Optional.empty(),
+            bundleConfig
+        )
+    );
+    start(mongoDbCoreBundle);
+    OplogManager oplogManager = new OplogManager(
+        bundleConfig.getThreadFactory(),
+        DefaultLoggerFactory.getInstance(),
+        mongoDbCoreBundle.getExternalInterface().getMongodServer(),
+        essentialInjector.getInstance(Retrier.class),
+        new ReplMetrics(new DisabledMetricRegistry())
+    );
+    start(oplogManager);
+    try (OplogManager.ReadOplogTransaction trans = oplogManager.createReadTransaction()) {
+      assertEquals(1234, trans.getLastAppliedHash());
+      assertEquals(OpTime.fromOplogEntry(MongoBsonTranslator.translate(oplogEntry)),
+          trans.getLastAppliedOptime());
+    }
+  }
+
+  @Test
+  public void testGetIndexFields() throws Exception {
+    List<IndexFieldInfo> fields = MongoDumpLoader.getIndexFields(createIndex(
+        new BsonDocument("name", new BsonInt32(1)).append("address.zip", new BsonInt32(-1))))
+        .get();
+
+    assertEquals(2, fields.size());
+    assertEquals(new AttributeReference.Builder().addObjectKey("name").build(),
+        fields.get(0).getAttributeReference());
+    assertTrue(fields.get(0).isAscending());
+    assertEquals(new AttributeReference.Builder().addObjectKey("address").addObjectKey("zip")
+        .build(), fields.get(1).getAttributeReference());
+    assertFalse(fields.get(1).isAscending());
+
+    assertFalse(MongoDumpLoader.getIndexFields(createIndex(
+        new BsonDocument("name", new BsonInt32(1)).append("loc", new BsonString("2dsphere"))))
+        .isPresent());
+  }
+
+  /**
+   * The Derby backend creates the position column of the index columns metadata table as a
+   * varchar, while it is written as an integer, which Derby rejects. The table is still empty once
+   * the backend has started, so it is created again with the right type to be able to create
+   * indexes.
+   */
+  private static void fixDocPartIndexColumnTable(String dbName) throws SQLException {
+    try (Connection conn = DriverManager.getConnection("jdbc:derby:memory:" + dbName);
+        Statement stmt = conn.createStatement()) {
+      stmt.execute("DROP TABLE \"torodb\".\"doc_part_index_column\"");
+      stmt.execute("CREATE TABLE \"torodb\".\"doc_part_index_column\" ("
+          + "\"database\" varchar(32672) NOT NULL, "
+          + "\"index_identifier\" varchar(128) NOT NULL, "
+          + "\"position\" integer NOT NULL, "
+          + "\"collection\" varchar(32672) NOT NULL, "
+          + "\"table_ref\" varchar(32672) NOT NULL, "
+          + "\"identifier\" varchar(32672) NOT NULL, "
+          + "\"ordering\" varchar(128) NOT NULL, "
+          + "PRIMARY KEY (\"database\", \"index_identifier\", \"position\"), "
+          + "UNIQUE (\"database\", \"index_identifier\", \"identifier\"))");
+    }
+  }
+
+  private static void assertUniqueIdIndex(ReadOnlyTorodTransaction trans, String database,
+      String collection) {
+    IndexInfo idIndex = trans.getIndexesInfo(database, collection)
+        .filter(index -> index.getName().equals("_id_"))
+        .findAny()
+        .orElseThrow(() -> new AssertionError("There is no _id index on " + database + "."
+            + collection));
+    assertTrue("The _id index is not unique", idIndex.isUnique());
+    assertEquals(1, idIndex.getFields().size());
+    assertEquals(new AttributeReference.Builder().addObjectKey("_id").build(),
+        idIndex.getFields().get(0).getAttributeReference());
+  }
+
+  private void start(Service service) {
+    service.startAsync();
+    service.awaitRunning();
+    services.add(service);
+  }
+
+  private static IndexOptions createIndex(BsonDocument key) throws MongoException {
+    return IndexOptions.unmarshall(MongoBsonTranslator.translate(new BsonDocument()
+        .append("v", new BsonInt32(2))
+        .append("key", key)
+        .append("name", new BsonString("test_index"))
+        .append("ns", new BsonString("test.foo"))));
+  }
+
+  private static ReplicationFilters createReplicationFilters() {
+    return new ReplicationFilters() {
+      @Override
+      public DatabaseFilter getDatabaseFilter() {
+        return database -> EXCLUDED_DATABASE.equals(database)
+            ? FilterResult.failure(db -> db + " is excluded")
+            : FilterResult.success();
+      }
+
+      @Override
+      public NamespaceFilter getNamespaceFilter() {
+        return (database, collection) -> FilterResult.success();
+      }
+
+      @Override
+      public IndexFilter getIndexFilter() {
+        return index -> FilterResult.success();
+      }
+    };
+  }
+
+  private static void writeBson(Path file, BsonDocument... docs) throws IOException {
+    try (OutputStream output = Files.newOutputStream(file)) {
+      for (BsonDocument doc : docs) {
+        RawBsonDocument rawDoc = new RawBsonDocument(doc, new BsonDocumentCodec());
+        output.write(Arrays.copyOf(rawDoc.getByteBuffer().array(),
+            rawDoc.getByteBuffer().remaining()));
+      }
+    }
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.torodb.stampede;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonString;
+import org.bson.BsonTimestamp;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+public class MongoDumpTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testReadDump() throws IOException {
+    Path root = temporaryFolder.getRoot().toPath();
+    Path database = Files.createDirectory(root.resolve("test"));
+    BsonDocument doc1 = new BsonDocument("_id", new BsonInt32(1))
+        .append("name", new BsonString("foo"));
+    BsonDocument doc2 = new BsonDocument("_id", new BsonInt32(2))
+        .append("name", new BsonString("bar"));
+    BsonDocument oplogEntry = new BsonDocument("ts", new BsonTimestamp(1500000000, 1))
+        .append("t", new BsonInt64(1))
+        .append("h", new BsonInt64(1234));
+    writeBson(Files.newOutputStream(database.resolve("foo.bson")), doc1, doc2);
+    writeBson(new GZIPOutputStream(Files.newOutputStream(database.resolve("bar.bson.gz"))),
+        doc1);
+    writeBson(Files.newOutputStream(root.resolve("oplog.bson")), oplogEntry);
+    Files.write(database.resolve("foo.metadata.json"), ("{\"options\":{},\"indexes\":["
+        + "{\"v\":{\"$numberInt\":\"2\"},\"key\":{\"_id\":{\"$numberInt\":\"1\"}},"
+        + "\"name\":\"_id_\"}]}").getBytes(StandardCharsets.UTF_8));
+
+    MongoDump dump = new MongoDump(root);
+
+    assertEquals(Arrays.asList("test"), dump.getDatabases());
+    assertEquals(Arrays.asList("bar", "foo"), dump.getCollections("test"));
+    try (BsonDocumentReader reader = dump.openCollection("test", "foo")) {
+      assertEquals(doc1, reader.next());
+      assertEquals(doc2, reader.next());
+      assertNull(reader.next());
+    }
+    try (BsonDocumentReader reader = dump.openCollection("test", "bar")) {
+      assertEquals(doc1, reader.next());
+      assertNull(reader.next());
+    }
+
+    List<BsonDocument> indexes = dump.getIndexes("test", "foo");
+    assertEquals(1, indexes.size());
+    assertEquals(new BsonInt32(2), indexes.get(0).get("v"));
+    assertEquals(new BsonDocument("_id", new BsonInt32(1)), indexes.get(0).get("key"));
+    assertEquals(new BsonString("test.foo"), indexes.get(0).get("ns"));
+    assertTrue(dump.getIndexes("test", "bar").isEmpty());
+
+    assertEquals(oplogEntry, dump.getFirstOplogEntry().get());
+  }
+
+  @Test
+  public void testDumpWithoutOplog() throws IOException {
+    MongoDump dump = new MongoDump(temporaryFolder.getRoot().toPath());
+
+    assertFalse(dump.getFirstOplogEntry().isPresent());
+  }
+
+  @Test(expected = IOException.class)
+  public void testCollectionStoredTwice() throws IOException {
+    Path root = temporaryFolder.getRoot().toPath();
+    Path database = Files.createDirectory(root.resolve("test"));
+    BsonDocument doc = new BsonDocument("_id", new BsonInt32(1));
+    writeBson(Files.newOutputStream(database.resolve("foo.bson")), doc);
+    writeBson(new GZIPOutputStream(Files.newOutputStream(database.resolve("foo.bson.gz"))), doc);
+
+    new MongoDump(root).getCollections("test");
+  }
+
+  @Test(expected = IOException.class)
+  public void testTruncatedDocument() throws IOException {
+    Path root = temporaryFolder.getRoot().toPath();
+    Path database = Files.createDirectory(root.resolve("test"));
+    byte[] bytes = toBytes(new BsonDocument("_id", new BsonInt32(1)));
+    Files.write(database.resolve("foo.bson"), Arrays.copyOf(bytes, bytes.length - 1));
+
+    try (BsonDocumentReader reader = new MongoDump(root).openCollection("test", "foo")) {
+      reader.next();
+    }
+  }
+
+  private static void writeBson(OutputStream output, BsonDocument... docs) throws IOException {
+    try (OutputStream closeableOutput = output) {
+      for (BsonDocument doc : docs) {
+        closeableOutput.write(toBytes(doc));
+      }
+    }
+  }
+
+  private static byte[] toBytes(BsonDocument doc) {
+    RawBsonDocument rawDoc = new RawBsonDocument(doc, new BsonDocumentCodec());
+    return Arrays.copyOf(rawDoc.getByteBuffer().array(), rawDoc.getByteBuffer().remaining());
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class ShardDatabasesTest {
+
+  @Test
+  public void testIsOwnedBy() {
+    assertTrue(ShardDatabases.isOwnedBy("foo_s1", "s1"));
+    assertTrue(ShardDatabases.isOwnedBy("torodb_s1", "s1"));
+    assertFalse(ShardDatabases.isOwnedBy("foo_s1", "s2"));
+    assertFalse(ShardDatabases.isOwnedBy("foo_s11", "s1"));
+    assertFalse(ShardDatabases.isOwnedBy("foos1", "s1"));
+  }
+
+  @Test
+  public void testIsOwnedByAny() {
+    assertTrue(ShardDatabases.isOwnedByAny("foo_s2", Arrays.asList("s1", "s2")));
+    assertFalse(ShardDatabases.isOwnedByAny("foo_s3", Arrays.asList("s1", "s2")));
+    assertFalse(ShardDatabases.isOwnedByAny("foo_s1", Collections.emptyList()));
+  }
+
+  @Test
+  public void testIsAmbiguous() {
+    assertFalse(ShardDatabases.isAmbiguous(Arrays.asList("s1", "s2", "s11")));
+    assertFalse(ShardDatabases.isAmbiguous(Arrays.asList("shard1", "hard1")));
+    assertTrue(ShardDatabases.isAmbiguous(Arrays.asList("s1", "a_s1")));
+  }
+}
@@ -17,6 +17,11 @@
  */
 package com.torodb.stampede;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableSet;
 import com.google.common.net.HostAndPort;
 import com.google.common.util.concurrent.Service;
 import com.google.inject.Guice;
@@ -24,23 +29,46 @@ import com.google.inject.Injector;
 import com.torodb.backend.derby.DerbyDbBackendBundle;
 import com.torodb.backend.derby.driver.DerbyDbBackendConfigBuilder;
 import com.torodb.core.backend.BackendBundle;
+import com.torodb.core.backend.BackendService;
 import com.torodb.core.bundle.BundleConfig;
+import com.torodb.core.bundle.BundleConfigImpl;
 import com.torodb.core.guice.EssentialModule;
 import com.torodb.core.logging.DefaultLoggerFactory;
+import com.torodb.core.retrier.Retrier;
+import com.torodb.core.supervision.SupervisorDecision;
 import com.torodb.mongodb.repl.ConsistencyHandler;
 import com.torodb.mongodb.repl.filters.ReplicationFilters;
 import com.torodb.mongodb.repl.sharding.MongoDbShardingConfig;
 import com.torodb.mongowp.client.wrapper.MongoClientConfiguration;
+import com.torodb.torod.ReadOnlyTorodTransaction;
+import com.torodb.torod.SharedWriteTorodTransaction;
+import com.torodb.torod.SqlTorodBundle;
+import com.torodb.torod.SqlTorodConfig;
+import com.torodb.torod.TorodBundle;
+import com.torodb.torod.TorodConnection;
+import org.apache.logging.log4j.Logger;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TestName;
 
 import java.time.Clock;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 public class StampedeServiceTest {
 
+  @Rule
+  public TestName testName = new TestName();
+
+  private final List<Service> services = new ArrayList<>();
   private StampedeConfig stampedeConfig;
 
   @SuppressWarnings("checkstyle:JavadocMethod")
@@ -51,10 +79,19 @@ public class StampedeServiceTest {
         this::createBackendBundle,
         ReplicationFilters.allowAll(),
         createShards(1),
+        false,
         DefaultLoggerFactory.getInstance()
     );
   }
 
+  @After
+  public void tearDown() {
+    for (int i = services.size() - 1; i >= 0; i--) {
+      services.get(i).stopAsync();
+      services.get(i).awaitTerminated();
+    }
+  }
+
   @Test
   public void testCreateStampedeService() {
     Service stampedeService = new StampedeService(stampedeConfig);
@@ -72,6 +109,91 @@ public class StampedeServiceTest {
     stampedeService.awaitTerminated();
   }
 
+  @Test
+  public void testResolveShardInconsistencies() throws Exception {
+    Injector essentialInjector = createEssentialInjector();
+    StampedeService stampedeService = new StampedeService(StampedeConfig.createShardingConfig(
+        essentialInjector,
+        this::createBackendBundle,
+        ReplicationFilters.allowAll(),
+        createShards(3),
+        true,
+        DefaultLoggerFactory.getInstance()
+    ));
+    BundleConfig bundleConfig = new BundleConfigImpl(essentialInjector,
+        (supervised, error) -> SupervisorDecision.STOP);
+    BackendBundle backendBundle = new DerbyDbBackendBundle(
+        new DerbyDbBackendConfigBuilder(bundleConfig)
+            .setDbName(getClass().getSimpleName() + "_" + testName.getMethodName())
+            .build()
+    );
+    start(backendBundle);
+    BackendService backendService = backendBundle.getExternalInterface().getBackendService();
+    Logger logger = DefaultLoggerFactory.get(StampedeServiceTest.class);
+
+    Map<String, ConsistencyHandler> consistencyHandlers = createConsistencyHandlers(
+        essentialInjector, bundleConfig, backendService);
+    consistencyHandlers.get("shard_1").setConsistent(logger, true);
+    consistencyHandlers.get("shard_2").setConsistent(logger, true);
+    Set<String> inconsistentShards = ImmutableSet.of("shard_0");
+
+    assertTrue(stampedeService.canResyncSelectively(consistencyHandlers, inconsistentShards));
+    assertFalse(stampedeService.canResyncSelectively(consistencyHandlers,
+        Collections.emptySet()));
+    assertFalse(stampedeService.canResyncSelectively(consistencyHandlers,
+        consistencyHandlers.keySet()));
+
+    TorodBundle torodBundle = new SqlTorodBundle(new SqlTorodConfig(
+        backendBundle,
+        essentialInjector,
+        bundleConfig.getSupervisor()
+    ));
+    start(torodBundle);
+    try (TorodConnection conn = torodBundle.getExternalInterface().getTorodServer()
+        .openConnection();
+        SharedWriteTorodTransaction trans = conn.openWriteTransaction(false)) {
+      trans.createCollection("foo_shard_0", "col");
+      trans.createCollection("bar_shard_0", "col");
+      trans.createCollection("foo_shard_1", "col");
+      trans.createCollection("foo_shard_2", "col");
+      trans.commit();
+    }
+
+    stampedeService.resolveShardInconsistencies(torodBundle, consistencyHandlers,
+        inconsistentShards);
+
+    try (TorodConnection conn = torodBundle.getExternalInterface().getTorodServer()
+        .openConnection();
+        ReadOnlyTorodTransaction trans = conn.openReadOnlyTransaction()) {
+      assertEquals(ImmutableSet.of("foo_shard_1", "foo_shard_2"),
+          trans.getDatabases().stream().collect(Collectors.toSet()));
+    }
+    Map<String, ConsistencyHandler> storedConsistencyHandlers = createConsistencyHandlers(
+        essentialInjector, bundleConfig, backendService);
+    assertFalse(storedConsistencyHandlers.get("shard_0").isConsistent());
+    assertTrue(storedConsistencyHandlers.get("shard_1").isConsistent());
+    assertTrue(storedConsistencyHandlers.get("shard_2").isConsistent());
+  }
+
+  private void start(Service service) {
+    service.startAsync();
+    service.awaitRunning();
+    services.add(service);
+  }
+
+  private Map<String, ConsistencyHandler> createConsistencyHandlers(Injector essentialInjector,
+      BundleConfig bundleConfig, BackendService backendService) {
+    Map<String, AbstractConsistencyHandler> result = new LinkedHashMap<>();
+    for (int i = 0; i < 3; i++) {
+      String shardId = "shard_" + i;
+      result.put(shardId, new ShardConsistencyHandler(shardId, backendService,
+          essentialInjector.getInstance(Retrier.class), bundleConfig.getThreadFactory()));
+    }
+    AbstractConsistencyHandler.loadConsistent(backendService, result.values());
+    result.values().forEach(this::start);
+    return Collections.unmodifiableMap(result);
+  }
+
   private Injector createEssentialInjector() {
     return Guice.createInjector(new EssentialModule(
         DefaultLoggerFactory.getInstance(),